@@ -2,6 +2,7 @@ package br.com.gabriel.bot;
 
 import br.com.gabriel.bot.model.ChatHistory;
 import br.com.gabriel.bot.repository.ChatHistoryRepository;
+import br.com.gabriel.bot.services.DisparoService;
 import br.com.gabriel.bot.services.OpenAiService;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.http.HttpServletRequest;
@@ -37,10 +38,13 @@ public class WebhookController {
 
     private final OpenAiService openAiService;
     private final ChatHistoryRepository historyRepository;
+    private final DisparoService disparoService;
 
-    public WebhookController(OpenAiService openAiService, ChatHistoryRepository historyRepository) {
+    public WebhookController(OpenAiService openAiService, ChatHistoryRepository historyRepository,
+                             DisparoService disparoService) {
         this.openAiService = openAiService;
         this.historyRepository = historyRepository;
+        this.disparoService = disparoService;
     }
 
     @PostMapping("/webhook")
@@ -203,26 +207,13 @@ public class WebhookController {
         AtomicInteger index = new AtomicInteger();
         int intervaloEmSegundos = 5;
 
-        String promptBase = """
-        Você é a Joana, uma assistente de receitas simpática e criativa. Gere uma mensagem acolhedora e variada para convidar o usuário a preparar uma receita hoje.
-
-        🟢 REGRAS FIXAS:
-        - Todas as mensagens devem começar com "Oiie!"
-        - Sempre inclua "aqui é a Joana" logo no início da mensagem
-
-        🎯 OBJETIVO:
-        - Convide o usuário a cozinhar hoje.
-        - Estimule a conversa perguntando quais ingredientes ele tem ou se quer sugestões.
-        - As mensagens devem parecer escritas por uma pessoa real.
-
-        🔁 VARIAÇÃO:
-        - Crie mensagens únicas, sem repetir estruturas ou frases das anteriores.
-        - Use 1 a 3 emojis no corpo do texto, com criatividade e moderação.
-        - Altere o tom entre divertido, acolhedor, curioso, animado e calmo.
-        - Não diga "formato desejável", apenas envie a mensagem final.
-        """;
+        disparoService.iniciarPool().thenAccept(pool -> {
+            if (pool.isVazio()) {
+                System.err.println("❌ Nenhuma variante gerada pela IA. Disparo cancelado.");
+                scheduler.shutdown();
+                return;
+            }
 
-        openAiService.ask("", null, new ArrayList<>(), promptBase).thenAccept(respostaIA -> {
             System.out.println("📢 Iniciando disparo para todos...");
 
             scheduler.scheduleAtFixedRate(() -> {
@@ -239,12 +230,16 @@ public class WebhookController {
 
                 try {
                     System.out.println("📨 Enviando para: " + userId);
-                    enviarMensagem(respostaIA, userId);
+                    enviarMensagem(pool.proximaMensagem(profile), userId);
                 } catch (Exception e) {
                     System.err.println("❌ Falha ao enviar para " + userId + ": " + e.getMessage());
                 }
 
             }, 0, intervaloEmSegundos, TimeUnit.SECONDS);
+        }).exceptionally(ex -> {
+            logger.error("Erro ao gerar variantes do disparo", ex);
+            scheduler.shutdown();
+            return null;
         });
 
         return ResponseEntity.ok("🟢 Disparo agendado para " + todosUsuarios.size() + " usuários.");
@@ -0,0 +1,258 @@
+package br.com.gabriel.bot.services;
+
+import br.com.gabriel.bot.model.ChatHistory;
+import br.com.gabriel.bot.util.RespostaUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Gera o conteúdo do disparo em massa a partir de um pool de K variantes.
+ *
+ * As variantes são geradas em poucas chamadas paralelas à OpenAI (cada uma pedindo
+ * várias mensagens de uma vez), então custo e tempo crescem com K e não com o número
+ * de usuários. Cada variante é reaproveitada por alguns usuários e personalizada na hora
+ * do envio com a saudação do horário + nome ({@link RespostaUtil#gerarSaudacao}).
+ */
+@Service
+public class DisparoService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisparoService.class);
+
+    /** Marcador que a IA deve deixar no texto; trocado pela saudação personalizada no envio. */
+    static final String SLOT_SAUDACAO = "{{saudacao}}";
+
+    private static final String SEPARADOR = "###";
+    private static final String ABERTURA = "Oiie!";
+
+    // Espaços colados ao marcador; só esse trecho é normalizado na renderização
+    private static final Pattern SLOT_COM_ESPACOS = Pattern.compile("[ \\t]*" + Pattern.quote(SLOT_SAUDACAO) + "[ \\t]*");
+
+    private static final String PROMPT_BASE = """
+        Você é a Joana, uma assistente de receitas simpática e criativa. Gere %d mensagens acolhedoras e variadas para convidar o usuário a preparar uma receita hoje.
+
+        🟢 REGRAS FIXAS:
+        - Todas as mensagens devem começar com "Oiie! {{saudacao}}" (copie o marcador {{saudacao}} exatamente assim, ele será trocado pela saudação com o nome do usuário)
+        - Logo depois do marcador, continue com "Aqui é a Joana" (com A maiúsculo)
+
+        🎯 OBJETIVO:
+        - Convide o usuário a cozinhar hoje.
+        - Estimule a conversa perguntando quais ingredientes ele tem ou se quer sugestões.
+        - As mensagens devem parecer escritas por uma pessoa real.
+
+        🔁 VARIAÇÃO:
+        - Crie mensagens únicas, sem repetir estruturas ou frases entre elas.
+        - Use 1 a 3 emojis no corpo do texto, com criatividade e moderação.
+        - Altere o tom entre divertido, acolhedor, curioso, animado e calmo.
+        - Não numere as mensagens e não diga "formato desejável".
+        - Separe cada mensagem com uma linha contendo apenas ###
+        """;
+
+    private final OpenAiService openAiService;
+
+    // Tamanho do pool (K) gerado a cada rodada
+    private final int variantes;
+
+    // Quantas variantes cada chamada à OpenAI devolve (as chamadas rodam em paralelo)
+    private final int variantesPorChamada;
+
+    // Quantos usuários recebem a mesma variante antes de ela sair do pool
+    private final int usosPorVariante;
+
+    // Teto de variantes geradas por disparo; depois disso o pool só recicla o que já existe
+    private final int maxVariantes;
+
+    private final boolean personalizar;
+
+    public DisparoService(OpenAiService openAiService,
+                          @Value("${disparo.variantes:10}") int variantes,
+                          @Value("${disparo.variantes-por-chamada:5}") int variantesPorChamada,
+                          @Value("${disparo.usos-por-variante:20}") int usosPorVariante,
+                          @Value("${disparo.max-variantes:50}") int maxVariantes,
+                          @Value("${disparo.personalizar:true}") boolean personalizar) {
+        this.openAiService = openAiService;
+        // Valores <= 0 travariam o loop de geração ou esvaziariam o pool na hora
+        this.variantes = Math.max(1, variantes);
+        this.variantesPorChamada = Math.max(1, variantesPorChamada);
+        this.usosPorVariante = Math.max(1, usosPorVariante);
+        this.maxVariantes = Math.max(this.variantes, maxVariantes);
+        this.personalizar = personalizar;
+    }
+
+    /** Gera o primeiro lote de variantes; completa com um pool vazio se a IA não devolver nada aproveitável. */
+    public CompletableFuture<PoolDeVariantes> iniciarPool() {
+        PoolDeVariantes pool = new PoolDeVariantes();
+        pool.solicitadas = variantes;
+        return gerarVariantes(variantes).thenApply(geradas -> {
+            pool.adicionar(geradas);
+            return pool;
+        });
+    }
+
+    /** Dispara ceil(quantidade / variantesPorChamada) chamadas em paralelo e junta os resultados. */
+    private CompletableFuture<List<String>> gerarVariantes(int quantidade) {
+        List<CompletableFuture<List<String>>> chamadas = new ArrayList<>();
+        for (int restante = quantidade; restante > 0; restante -= variantesPorChamada) {
+            int lote = Math.min(restante, variantesPorChamada);
+            chamadas.add(openAiService.ask("", null, new ArrayList<>(), PROMPT_BASE.formatted(lote))
+                    .thenApply(resposta -> separarVariantes(resposta, lote)));
+        }
+
+        long t0 = System.nanoTime();
+        return CompletableFuture.allOf(chamadas.toArray(new CompletableFuture[0])).thenApply(v -> {
+            List<String> geradas = new ArrayList<>();
+            chamadas.forEach(c -> geradas.addAll(c.join()));
+            logger.info("Disparo: {} variantes geradas em {} chamadas ({} ms)",
+                    geradas.size(), chamadas.size(), (System.nanoTime() - t0) / 1_000_000);
+            return geradas;
+        });
+    }
+
+    /**
+     * Quebra a resposta em mensagens, descartando vazios, numeração, respostas de erro do OpenAiService
+     * e trechos que juntam mais de uma mensagem. Variantes sem o marcador recebem o marcador no início.
+     */
+    static List<String> separarVariantes(String resposta, int lote) {
+        if (resposta == null || resposta.isBlank() || resposta.startsWith("❌")) {
+            logger.warn("Disparo: lote de variantes descartado: {}", resposta);
+            return List.of();
+        }
+
+        List<String> variantes = new ArrayList<>();
+        for (String trecho : resposta.split("(?m)^\\s*" + SEPARADOR + "\\s*$")) {
+            String texto = trecho.trim().replaceFirst("^\\d+[.)]\\s*", "");
+            if (texto.isBlank()) continue;
+
+            if (texto.split(Pattern.quote(ABERTURA), -1).length > 2) {
+                logger.warn("Disparo: trecho com mais de uma mensagem descartado: {}", texto);
+                continue;
+            }
+            if (!texto.contains(SLOT_SAUDACAO)) {
+                logger.warn("Disparo: variante sem {}, inserindo o marcador: {}", SLOT_SAUDACAO, texto);
+                texto = texto.startsWith(ABERTURA)
+                        ? ABERTURA + " " + SLOT_SAUDACAO + " " + texto.substring(ABERTURA.length()).trim()
+                        : SLOT_SAUDACAO + " " + texto;
+            }
+            variantes.add(texto);
+        }
+
+        if (variantes.size() != lote) {
+            logger.warn("Disparo: pedidas {} variantes, aproveitadas {}", lote, variantes.size());
+        }
+        return variantes;
+    }
+
+    String renderizar(String variante, ChatHistory usuario) {
+        String saudacao = personalizar
+                ? RespostaUtil.gerarSaudacao(LocalTime.now(), usuario.getNome()).trim()
+                : "";
+        String substituto = saudacao.isEmpty() ? " " : " " + saudacao + " ";
+        return SLOT_COM_ESPACOS.matcher(variante).replaceAll(Matcher.quoteReplacement(substituto)).strip();
+    }
+
+    private static final class Variante {
+        private final String texto;
+        private int usos;
+
+        private Variante(String texto) {
+            this.texto = texto;
+        }
+    }
+
+    /**
+     * Pool de um disparo. As variantes são distribuídas em rodízio; quando a capacidade restante
+     * (envios que ainda cabem nas variantes ativas) cai pela metade de K × usos, um novo lote é
+     * gerado em segundo plano (até {@code disparo.max-variantes}). Se o pool esvaziar antes do
+     * lote chegar, as variantes antigas cobrem os envios sem voltar para o rodízio.
+     */
+    public final class PoolDeVariantes {
+
+        private final Deque<Variante> ativas = new ArrayDeque<>();
+        private final List<Variante> geradas = new ArrayList<>();
+        private int capacidadeRestante;
+        private int solicitadas;
+        private int proximaPonte;
+        private boolean reabastecendo;
+
+        private PoolDeVariantes() {
+        }
+
+        public synchronized boolean isVazio() {
+            return geradas.isEmpty();
+        }
+
+        /** Próxima mensagem já personalizada para o usuário, ou null se nenhuma variante foi gerada. */
+        public synchronized String proximaMensagem(ChatHistory usuario) {
+            if (geradas.isEmpty()) return null;
+
+            if (ativas.isEmpty()) {
+                reabastecer();
+                if (ativas.isEmpty()) {
+                    if (reabastecendo) {
+                        // Enquanto o lote não chega, reaproveita uma variante antiga sem mexer nos usos
+                        Variante ponte = geradas.get(proximaPonte++ % geradas.size());
+                        return renderizar(ponte.texto, usuario);
+                    }
+                    reciclarTudo();
+                }
+            }
+
+            Variante variante = ativas.pollFirst();
+            capacidadeRestante--;
+            if (++variante.usos < usosPorVariante) {
+                ativas.addLast(variante);
+            }
+
+            if (capacidadeRestante <= variantes * usosPorVariante / 2) {
+                reabastecer();
+            }
+            return renderizar(variante.texto, usuario);
+        }
+
+        /** Só acontece depois de {@code disparo.max-variantes}: todas as variantes voltam com os usos zerados. */
+        private void reciclarTudo() {
+            logger.info("Disparo: pool esgotado, reciclando {} variantes", geradas.size());
+            for (Variante v : geradas) {
+                v.usos = 0;
+                ativas.addLast(v);
+            }
+            capacidadeRestante = geradas.size() * usosPorVariante;
+        }
+
+        private void reabastecer() {
+            // O teto conta o que foi pedido (não o que veio), para lotes com falha não virarem retry infinito
+            int faltam = Math.min(variantes, maxVariantes - solicitadas);
+            if (reabastecendo || faltam <= 0) return;
+
+            reabastecendo = true;
+            solicitadas += faltam;
+            logger.info("Disparo: pool baixo ({} envios restantes), gerando mais {} variantes", capacidadeRestante, faltam);
+            gerarVariantes(faltam).whenComplete((novas, ex) -> {
+                if (ex != null) logger.error("Disparo: falha ao reabastecer o pool", ex);
+                synchronized (this) {
+                    if (novas != null) adicionar(novas);
+                    reabastecendo = false;
+                }
+            });
+        }
+
+        private synchronized void adicionar(List<String> textos) {
+            for (String texto : textos) {
+                Variante variante = new Variante(texto);
+                geradas.add(variante);
+                ativas.addLast(variante);
+                capacidadeRestante += usosPorVariante;
+            }
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package br.com.gabriel.bot.services;
+
+import br.com.gabriel.bot.model.ChatHistory;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DisparoServiceTest {
+
+    /** Devolve as respostas na ordem em que foram enfileiradas, sem chamar a OpenAI. */
+    private static class OpenAiServiceFake extends OpenAiService {
+        private final Deque<CompletableFuture<String>> respostas = new ArrayDeque<>();
+
+        @Override
+        public CompletableFuture<String> ask(String sender, String nome, List<String> historico, String mensagemFinal) {
+            return respostas.isEmpty() ? CompletableFuture.completedFuture("") : respostas.poll();
+        }
+    }
+
+    private static String lote(String... ids) {
+        List<String> mensagens = new ArrayList<>();
+        for (String id : ids) mensagens.add("Oiie! {{saudacao}} Aqui é a Joana, variante " + id);
+        return String.join("\n###\n", mensagens);
+    }
+
+    private static String id(String mensagem) {
+        return mensagem.substring(mensagem.lastIndexOf(' ') + 1);
+    }
+
+    @Test
+    void separaNoSeparadorERemoveNumeracao() {
+        String resposta = "1. Oiie! {{saudacao}} Aqui é a Joana 🍝\n###\n2) Oiie! {{saudacao}} Aqui é a Joana 🥗\n###\n";
+
+        List<String> variantes = DisparoService.separarVariantes(resposta, 2);
+
+        assertEquals(List.of("Oiie! {{saudacao}} Aqui é a Joana 🍝", "Oiie! {{saudacao}} Aqui é a Joana 🥗"), variantes);
+    }
+
+    @Test
+    void descartaRespostaDeErro() {
+        assertTrue(DisparoService.separarVariantes("❌ Timeout ao se comunicar com a OpenAI.", 5).isEmpty());
+    }
+
+    @Test
+    void descartaTrechoComVariasMensagensEInsereMarcadorAusente() {
+        String resposta = "Oiie! Aqui é a Joana 🍰\nOiie! Aqui é a Joana de novo\n###\nOiie! Aqui é a Joana 🍲";
+
+        List<String> variantes = DisparoService.separarVariantes(resposta, 2);
+
+        assertEquals(List.of("Oiie! {{saudacao}} Aqui é a Joana 🍲"), variantes);
+    }
+
+    @Test
+    void renderizaSaudacaoSemMexerNoRestoDoTexto() {
+        DisparoService service = new DisparoService(new OpenAiServiceFake(), 1, 1, 1, 1, false);
+
+        String mensagem = service.renderizar("Oiie! {{saudacao}} Aqui é a Joana\n  - item  1", new ChatHistory());
+
+        assertEquals("Oiie! Aqui é a Joana\n  - item  1", mensagem);
+    }
+
+    @Test
+    void respeitaUsosPorVarianteDuranteReabastecimento() {
+        OpenAiServiceFake openAi = new OpenAiServiceFake();
+        CompletableFuture<String> segundoLote = new CompletableFuture<>();
+        openAi.respostas.add(CompletableFuture.completedFuture(lote("A", "B")));
+        openAi.respostas.add(segundoLote);
+
+        DisparoService service = new DisparoService(openAi, 2, 2, 3, 4, false);
+        DisparoService.PoolDeVariantes pool = service.iniciarPool().join();
+        ChatHistory usuario = new ChatHistory();
+
+        List<String> enviados = new ArrayList<>();
+        for (int i = 0; i < 3; i++) enviados.add(id(pool.proximaMensagem(usuario)));
+
+        // Metade da capacidade (2 variantes × 3 usos) consumida: o lote novo já foi pedido
+        assertTrue(openAi.respostas.isEmpty(), "reabastecimento deveria começar com metade da capacidade");
+
+        for (int i = 0; i < 4; i++) enviados.add(id(pool.proximaMensagem(usuario)));
+
+        // 6 envios esgotam A e B (3 usos cada); o 7º é ponte enquanto o lote não chega
+        assertEquals(List.of("A", "B", "A", "B", "A", "B", "A"), enviados);
+
+        segundoLote.complete(lote("C", "D"));
+        enviados.clear();
+        for (int i = 0; i < 6; i++) enviados.add(id(pool.proximaMensagem(usuario)));
+
+        // As antigas não ganham um novo ciclo: só C e D, 3 usos cada
+        assertEquals(List.of("C", "D", "C", "D", "C", "D"), enviados);
+
+        // Teto atingido: aí sim todas voltam com os usos zerados
+        enviados.clear();
+        for (int i = 0; i < 4; i++) enviados.add(id(pool.proximaMensagem(usuario)));
+        assertEquals(List.of("A", "B", "C", "D"), enviados);
+    }
+}